@@ -1,9 +1,14 @@
 package Motherboard;
 
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -23,11 +28,22 @@ public final class Device{
     //each device will have a message received from a different device
     private final Map<Message, Device> deviceMessages;
 
+    //secondary indexes over the received messages, kept in step with deviceMessages.
+    private final Map<Device, Set<Message>> messagesBySender;
+    private final Map<Integer, Set<Message>> messagesByPort;
+    private final Map<String, Set<Message>> messagesByIdentifier;
+
+    //messages waiting for a port to be added, null unless parking is enabled.
+    private PendingDeliveries pending;
+
     private Device(String identifier) {
         assert identifier != null;
 
         devicePorts = new HashMap<>();
         deviceMessages = new HashMap<>();
+        messagesBySender = new HashMap<>();
+        messagesByPort = new HashMap<>();
+        messagesByIdentifier = new HashMap<>();
 
         this.identifier = identifier;
     }
@@ -55,6 +71,36 @@ public final class Device{
         logger.info("port assignment: " + portAssign);
 
         devicePorts.put(portAssign, this);
+
+        if (pending != null)
+            pending.drain(portAssign, this::store);
+    }
+
+    /**
+     * This will hold messages sent to ports the device hasn't added yet,
+     * instead of dropping them, and deliver them once the port is added.
+     * @param capacity the maximum number of messages held per port
+     * @param ttl how long a message is held before it's dead-lettered
+     * @param deadLetters the maximum number of expired messages kept, across all ports
+     * @throws IllegalStateException if parking is already enabled, so parked messages aren't lost.
+     */
+    public void enableParking(int capacity, Duration ttl, int deadLetters) {
+        PendingDeliveries parking = new PendingDeliveries(capacity, ttl, deadLetters);
+
+        if (pending != null) {
+            logger.severe("parking is already enabled");
+            throw new IllegalStateException("parking is already enabled");
+        }
+
+        pending = parking;
+    }
+
+    /**
+     * This will return the messages held for ports the device hasn't added yet.
+     * @return the pending deliveries, empty if parking isn't enabled.
+     */
+    public Optional<PendingDeliveries> pendingDeliveries() {
+        return Optional.ofNullable(pending);
     }
 
 
@@ -75,11 +121,22 @@ public final class Device{
      * @param recipient the device to forward the message to
      */
     public void forward(Message m, Device recipient) {
+        boolean traced = MessageTracer.sampled(m);
+        long t = traced ? System.nanoTime() : 0;
+
         MotherboardException.checkNullDevice(recipient);
         MotherboardException.checkNullMessage(m);
+        if (traced) t = MessageTracer.span("forward.validate", m, this, recipient, t);
 
-        if (recipient.hasPort(m, recipient))
+        boolean deliverable = recipient.hasPort(m, recipient);
+        if (traced) t = MessageTracer.span("forward.hasPort", m, this, recipient, t);
+
+        if (deliverable) {
             this.send(m, recipient);
+            if (traced) MessageTracer.span("forward.insert", m, this, recipient, t);
+        } else if (recipient.pending != null) {
+            recipient.pending.park(m, this);
+        }
     }
 
     /**
@@ -88,10 +145,22 @@ public final class Device{
      * @param sender the device sending the message
      */
     public void receive(Message m, Device sender) {
+        boolean traced = MessageTracer.sampled(m);
+        long t = traced ? System.nanoTime() : 0;
+
         MotherboardException.checkNullDevice(sender);
         MotherboardException.checkNullMessage(m);
+        if (traced) t = MessageTracer.span("receive.validate", m, sender, this, t);
 
-        this.accept(m, sender);
+        boolean deliverable = this.hasPort(m, this);
+        if (traced) t = MessageTracer.span("receive.hasPort", m, sender, this, t);
+
+        if (deliverable) {
+            this.accept(m, sender);
+            if (traced) MessageTracer.span("receive.insert", m, sender, this, t);
+        } else if (pending != null) {
+            pending.park(m, sender);
+        }
     }
 
     //the actual send operation used for the forward method.
@@ -103,7 +172,7 @@ public final class Device{
 
         //put messages into the recipient and designate the sender
         //add the port connection from the sender.
-        device.deviceMessages.put(m, this);
+        device.store(m, this);
     }
 
     //the actual receive operation used for the receive method.
@@ -113,10 +182,79 @@ public final class Device{
         assert m.identifier() != null : "id is null";
         assert device != null : "app is null";
 
-        if (this.hasPort(m, this)) {
-            //designates the sender of the message
-            deviceMessages.put(m, device);
+        //designates the sender of the message
+        store(m, device);
+    }
+
+    //records a received message and updates the indexes.
+    private void store(Message m, Device sender) {
+        Device previous = deviceMessages.put(m, sender);
+
+        if (previous == sender)
+            return;
+
+        //a message received again only changes its sender.
+        if (previous != null) {
+            Set<Message> fromPrevious = messagesBySender.get(previous);
+            fromPrevious.remove(m);
+            if (fromPrevious.isEmpty())
+                messagesBySender.remove(previous);
+        } else {
+            index(messagesByPort, m.port(), m);
+            index(messagesByIdentifier, m.identifier(), m);
         }
+        index(messagesBySender, sender, m);
+    }
+
+    //adds the message under the key of an index.
+    private static <K> void index(Map<K, Set<Message>> index, K key, Message m) {
+        index.computeIfAbsent(key, k -> new HashSet<>()).add(m);
+    }
+
+    //iterates the messages under the key of an index without copying them, fails fast on delivery.
+    private static <K> Iterator<Message> lookup(Map<K, Set<Message>> index, K key) {
+        Set<Message> messages = index.get(key);
+
+        if (messages == null)
+            return Collections.emptyIterator();
+        return Collections.unmodifiableSet(messages).iterator();
+    }
+
+    /**
+     * This will return the messages this device received from the sender.
+     * The iterator is a live view, delivering to this device while iterating throws a
+     * ConcurrentModificationException, so flush a ShardedMotherboard before iterating.
+     * @param sender the device that sent the messages
+     * @return read-only iterator over the indexed messages.
+     */
+    public Iterator<Message> messagesFrom(Device sender) {
+        MotherboardException.checkNullDevice(sender);
+
+        return lookup(messagesBySender, sender);
+    }
+
+    /**
+     * This will return the messages this device received on the port.
+     * The iterator is a live view, delivering to this device while iterating throws a
+     * ConcurrentModificationException, so flush a ShardedMotherboard before iterating.
+     * @param port the port the messages came in on
+     * @return read-only iterator over the indexed messages.
+     */
+    public Iterator<Message> messagesOnPort(int port) {
+        return lookup(messagesByPort, port);
+    }
+
+    /**
+     * This will return the messages this device received with the identifier.
+     * The iterator is a live view, delivering to this device while iterating throws a
+     * ConcurrentModificationException, so flush a ShardedMotherboard before iterating.
+     * @param identifier the identifier carried by the messages
+     * @return read-only iterator over the indexed messages.
+     */
+    public Iterator<Message> messagesWithIdentifier(String identifier) {
+        MotherboardException.checkNullId(identifier);
+
+        return lookup(messagesByIdentifier, identifier);
     }
 
     /**
@@ -0,0 +1,165 @@
+package Motherboard;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sampled tracing of the stages a message goes through in Motherboard.broadcast,
+ * Device.forward and Device.receive. Spans are kept in a lock-free ring buffer holding
+ * the most recent ones and can be exported in the Chrome trace-event JSON format.
+ *
+ * A message is sampled by its hash, so every stage of a sampled message is recorded on
+ * every device it reaches. Messages carry no sequence number, so the hash is also what
+ * ties the spans of one message together.
+ */
+public final class MessageTracer {
+
+    //spans kept before the oldest are overwritten, a power of two.
+    private static final int CAPACITY = 1 << 16;
+
+    //resolution of the sample rate.
+    private static final int SCALE = 1 << 16;
+
+    //the ring buffer of recorded spans.
+    private static final AtomicReferenceArray<Span> spans = new AtomicReferenceArray<>(CAPACITY);
+
+    //total number of spans ever recorded, the next slot is cursor mod CAPACITY.
+    private static final AtomicLong cursor = new AtomicLong();
+
+    //time origin of the exported timestamps.
+    private static final long EPOCH = System.nanoTime();
+
+    //sampled messages hash below this value, 0 turns tracing off.
+    private static volatile int threshold;
+
+    private MessageTracer() {
+    }
+
+    //a single timed stage of a message.
+    private record Span(String stage, int sequence, String sender, String recipient,
+                        long thread, long start, long end) {
+    }
+
+    /**
+     * Sets the fraction of messages to trace, tracing is off by default.
+     * @param rate sample rate between 0 (off) and 1 (every message).
+     * @throws IllegalArgumentException if the rate is outside of [0, 1].
+     */
+    public static void setSampleRate(double rate) {
+        MotherboardException.checkSampleRate(rate);
+
+        threshold = (int) Math.round(rate * SCALE);
+    }
+
+    /**
+     * Discards every recorded span.
+     */
+    public static void clear() {
+        for (int i = 0; i < CAPACITY; i++) {
+            spans.set(i, null);
+        }
+        cursor.set(0);
+    }
+
+    /**
+     * Writes the recorded spans to a file in Chrome trace-event JSON format,
+     * which can be opened in chrome://tracing or Perfetto.
+     * @param file the file to write.
+     * @throws IOException if the file can't be written.
+     */
+    public static void export(Path file) throws IOException {
+        long last = cursor.get();
+        long first = Math.max(0, last - CAPACITY);
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("{\"traceEvents\":[");
+
+            boolean separator = false;
+            for (long i = first; i < last; i++) {
+                Span span = spans.get((int) i & (CAPACITY - 1));
+                if (span == null)
+                    continue;
+
+                if (separator)
+                    out.write(",");
+                out.write("\n");
+                writeEvent(out, span);
+                separator = true;
+            }
+
+            out.write("\n],\"displayTimeUnit\":\"ns\"}\n");
+        }
+    }
+
+    //decides whether the stages of the message are traced.
+    static boolean sampled(Message m) {
+        int t = threshold;
+        if (t == 0 || m == null)
+            return false;
+
+        int h = m.hashCode();
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        h ^= h >>> 16;
+        return (h & (SCALE - 1)) < t;
+    }
+
+    /**
+     * Records a stage that started at the given time and ends now.
+     * @param stage the name of the stage.
+     * @param m the message going through the stage.
+     * @param sender the sending device, or null.
+     * @param recipient the receiving device, or null.
+     * @param start when the stage started, from System.nanoTime.
+     * @return the end of the stage, which is the start of the next one.
+     */
+    static long span(String stage, Message m, Device sender, Device recipient, long start) {
+        long end = System.nanoTime();
+
+        Span span = new Span(stage, m.hashCode(),
+                sender == null ? null : sender.toString(),
+                recipient == null ? null : recipient.toString(),
+                Thread.currentThread().getId(), start, end);
+        spans.set((int) cursor.getAndIncrement() & (CAPACITY - 1), span);
+
+        return end;
+    }
+
+    //writes one complete ("X") event.
+    private static void writeEvent(Writer out, Span span) throws IOException {
+        out.write(String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"cat\":\"motherboard\",\"ph\":\"X\",\"pid\":1,\"tid\":%d,"
+                        + "\"ts\":%.3f,\"dur\":%.3f,\"args\":{\"seq\":%d",
+                escape(span.stage()), span.thread(),
+                (span.start() - EPOCH) / 1e3, (span.end() - span.start()) / 1e3, span.sequence()));
+
+        if (span.sender() != null)
+            out.write(",\"sender\":\"" + escape(span.sender()) + "\"");
+        if (span.recipient() != null)
+            out.write(",\"recipient\":\"" + escape(span.recipient()) + "\"");
+
+        out.write("}}");
+    }
+
+    //escapes a string for a JSON string literal.
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -57,13 +57,17 @@ public final class Motherboard {
      * @param m message to be sent.
      */
     public void broadcast(Device a, Message m) {
+        boolean traced = MessageTracer.sampled(m);
+        long t = traced ? System.nanoTime() : 0;
 
         MotherboardException.checkNullDevice(a);
         MotherboardException.checkNullMessage(m);
+        if (traced) t = MessageTracer.span("broadcast.validate", m, a, null, t);
 
         for (Device recipients : deviceLookup.values()) {
             a.forward(m, recipients);
         }
+        if (traced) MessageTracer.span("broadcast.fanout", m, a, null, t);
     }
 
     /**
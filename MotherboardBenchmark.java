@@ -0,0 +1,103 @@
+package Motherboard;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Broadcast-heavy throughput benchmark comparing Motherboard with ShardedMotherboard.
+ * Each delivery includes maintaining the recipient's sender, port and identifier indexes.
+ * Usage: MotherboardBenchmark [devices] [broadcasts]
+ */
+public final class MotherboardBenchmark {
+
+    //port every benchmark device listens on.
+    private static final int PORT = 13;
+
+    //shard counts measured after the single-threaded baseline.
+    private static final int[] SHARD_COUNTS = {1, 2, 4, 8};
+
+    private MotherboardBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark and prints deliveries per second for each configuration.
+     * @param args optional device count and broadcast count.
+     */
+    public static void main(String[] args) {
+        int devices = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int broadcasts = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        //addPort logs every assignment, keep that out of the measurement.
+        Logger.getLogger(Device.class.getName()).setLevel(Level.WARNING);
+
+        Message[] messages = new Message[broadcasts];
+        for (int i = 0; i < broadcasts; i++) {
+            messages[i] = new Message("bench", PORT, "payload-" + i);
+        }
+
+        //warm up both paths before measuring.
+        runBaseline(devices, messages);
+        runSharded(devices, messages, SHARD_COUNTS[SHARD_COUNTS.length - 1]);
+
+        report("motherboard", devices, broadcasts, runBaseline(devices, messages));
+
+        //tracing overhead at a 1% sample rate.
+        MessageTracer.setSampleRate(0.01);
+        report("traced 1%", devices, broadcasts, runBaseline(devices, messages));
+        MessageTracer.setSampleRate(0);
+        MessageTracer.clear();
+
+        for (int shards : SHARD_COUNTS) {
+            report("sharded x" + shards, devices, broadcasts, runSharded(devices, messages, shards));
+        }
+    }
+
+    //times the broadcasts on a plain Motherboard.
+    private static long runBaseline(int devices, Message[] messages) {
+        Motherboard mb = new Motherboard();
+        Device[] connected = connect(devices);
+        for (Device d : connected) {
+            mb.add(d);
+        }
+
+        long start = System.nanoTime();
+        for (Message m : messages) {
+            mb.broadcast(connected[0], m);
+        }
+        return System.nanoTime() - start;
+    }
+
+    //times the broadcasts on a ShardedMotherboard, including the final flush.
+    private static long runSharded(int devices, Message[] messages, int shards) {
+        try (ShardedMotherboard mb = new ShardedMotherboard(shards)) {
+            Device[] connected = connect(devices);
+            for (Device d : connected) {
+                mb.add(d);
+            }
+            mb.flush();
+
+            long start = System.nanoTime();
+            for (Message m : messages) {
+                mb.broadcast(connected[0], m);
+            }
+            mb.flush();
+            return System.nanoTime() - start;
+        }
+    }
+
+    //creates devices with distinct full identifiers so they spread across the shards.
+    private static Device[] connect(int devices) {
+        Device[] connected = new Device[devices];
+        for (int i = 0; i < devices; i++) {
+            connected[i] = Device.createDevice(Integer.toString(i, 36));
+            connected[i].addPort(PORT);
+        }
+        return connected;
+    }
+
+    private static void report(String name, int devices, int broadcasts, long nanos) {
+        double deliveries = (double) devices * broadcasts;
+        System.out.printf("%-14s %10.0f deliveries/s (%d ms)%n",
+                name, deliveries * 1e9 / nanos, nanos / 1_000_000);
+    }
+}
@@ -1,6 +1,7 @@
 package Motherboard;
 
 
+import java.time.Duration;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -78,6 +79,47 @@ public final class MotherboardException extends Exception {
     }
 
 
+    /**
+     * Checking for a usable number of shards.
+     * @param shards number of shards to be checked.
+     * @throws IllegalArgumentException if there isn't at least one shard.
+     */
+    public static void checkShardCount(int shards) throws IllegalArgumentException {
+        if (shards < 1) {
+            logger.log(Level.SEVERE, "motherboard needs at least one shard");
+            throw new IllegalArgumentException("shard count must be positive");
+        }
+    }
+
+
+    /**
+     * Checking for a sample rate between 0 and 1.
+     * @param rate sample rate to be checked.
+     * @throws IllegalArgumentException if rate is outside of [0, 1].
+     */
+    public static void checkSampleRate(double rate) throws IllegalArgumentException {
+        if (!(rate >= 0 && rate <= 1)) {
+            logger.log(Level.SEVERE, "sample rate must be between 0 and 1");
+            throw new IllegalArgumentException("invalid sample rate");
+        }
+    }
+
+
+    /**
+     * Checking for a usable parking capacity, time to live and dead-letter capacity.
+     * @param capacity messages parked per port.
+     * @param ttl how long a message stays parked.
+     * @param deadLetters expired messages kept.
+     * @throws IllegalArgumentException if a capacity or ttl isn't positive.
+     */
+    public static void checkParking(int capacity, Duration ttl, int deadLetters) throws IllegalArgumentException {
+        if (capacity < 1 || deadLetters < 1 || ttl == null || ttl.isNegative() || ttl.isZero()) {
+            logger.log(Level.SEVERE, "parking needs positive capacities and ttl");
+            throw new IllegalArgumentException("invalid parking capacity or ttl");
+        }
+    }
+
+
     /**
      * checking the device identifier and if it's less than 3 characters,
      * it'll return an identifier with all lowercase letters.
@@ -5,6 +5,14 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 
 
@@ -362,4 +370,298 @@ public class MotherboardTest {
 
         assertThrows(IllegalArgumentException.class, () -> app.broadcast(m, f));
     }
+
+    //test ShardedMotherboard class
+    @Test
+    public void testShardedAddRemove() {
+        try (ShardedMotherboard mb = new ShardedMotherboard(4)) {
+            Device a = Device.createDevice("a");
+            Device b = Device.createDevice("b");
+
+            mb.add(a);
+            mb.add(b);
+
+            assertEquals("b", mb.getDevice("b").toString());
+
+            mb.remove("a");
+
+            assertNull(mb.getDevice("a"));
+            assertEquals("{b=b}", mb.toString());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new ShardedMotherboard(0));
+    }
+
+    @Test
+    public void testShardedBroadcast() {
+        try (ShardedMotherboard mb = new ShardedMotherboard(3)) {
+            Device a = Device.createDevice("a");
+            Device b = Device.createDevice("b");
+            Device c = Device.createDevice("c");
+            Device d = Device.createDevice("d");
+
+            a.addPort(12);
+            b.addPort(13);
+            c.addPort(13);
+            d.addPort(13);
+
+            mb.add(a); mb.add(b); mb.add(c); mb.add(d);
+
+            Message m = new Message("a", 13, "hello");
+            Message m2 = new Message("c", 13, "just c");
+
+            mb.broadcast(a, m);
+            mb.forward(a, m2, "c");
+            mb.flush();
+
+            assertTrue(b.deviceMessages().containsKey(m));
+            assertTrue(c.deviceMessages().containsKey(m));
+            assertTrue(d.deviceMessages().containsKey(m));
+            assertFalse(a.deviceMessages().containsKey(m));
+
+            assertTrue(c.deviceMessages().containsKey(m2));
+            assertFalse(b.deviceMessages().containsKey(m2));
+
+            assertThrows(IllegalArgumentException.class, () -> mb.broadcast(a, null));
+        }
+    }
+
+    @Test
+    public void testShardedBackpressure() {
+        //more broadcasts than a shard queue holds, so the caller waits and the ring wraps around
+        int broadcasts = 3000;
+
+        try (ShardedMotherboard mb = new ShardedMotherboard(2)) {
+            Device a = Device.createDevice("a");
+            Device b = Device.createDevice("b");
+            Device c = Device.createDevice("c");
+
+            b.addPort(13);
+            c.addPort(13);
+
+            mb.add(a); mb.add(b); mb.add(c);
+
+            for (int i = 0; i < broadcasts; i++) {
+                mb.broadcast(a, new Message("a", 13, "hello " + i));
+            }
+            mb.flush();
+
+            assertEquals(broadcasts, b.deviceMessages().size());
+            assertEquals(broadcasts, c.deviceMessages().size());
+            assertEquals(0, a.deviceMessages().size());
+        }
+    }
+
+    @Test
+    public void testShardedDeadShard() {
+        ShardedMotherboard mb = new ShardedMotherboard(2);
+        mb.add(Device.createDevice("a"));
+        mb.flush();
+
+        //an Error ends the shard thread, the task queued behind it is never run
+        mb.submit("a", lookup -> {
+            throw new AssertionError("shard failure");
+        });
+        mb.remove("a");
+
+        assertThrows(IllegalStateException.class, mb::flush);
+        assertThrows(IllegalStateException.class, mb::close);
+    }
+
+    @Test
+    public void testMessageIndexes() {
+        Device a = Device.createDevice("a");
+        Device b = Device.createDevice("b");
+        Device c = Device.createDevice("c");
+
+        c.addPort(12);
+        c.addPort(13);
+
+        Message m = new Message("a", 13, "hello");
+        Message m2 = new Message("b", 12, "hi");
+        Message m3 = new Message("a", 12, "again");
+
+        a.forward(m, c);
+        c.receive(m2, b);
+        a.forward(m3, c);
+
+        Iterator<Message> fromA = c.messagesFrom(a);
+        assertTrue(fromA.hasNext());
+        assertThrows(UnsupportedOperationException.class, fromA::remove);
+
+        Set<Message> byPort = new HashSet<>();
+        c.messagesOnPort(12).forEachRemaining(byPort::add);
+        assertEquals(Set.of(m2, m3), byPort);
+
+        Set<Message> byId = new HashSet<>();
+        c.messagesWithIdentifier("a").forEachRemaining(byId::add);
+        assertEquals(Set.of(m, m3), byId);
+
+        //receiving the same message from a different sender moves it between senders
+        c.receive(m, b);
+
+        Set<Message> fromB = new HashSet<>();
+        c.messagesFrom(b).forEachRemaining(fromB::add);
+        assertEquals(Set.of(m, m2), fromB);
+
+        Set<Message> stillFromA = new HashSet<>();
+        c.messagesFrom(a).forEachRemaining(stillFromA::add);
+        assertEquals(Set.of(m3), stillFromA);
+
+        assertFalse(c.messagesOnPort(99).hasNext());
+        assertFalse(b.messagesFrom(a).hasNext());
+    }
+
+    @Test
+    public void testTracing() throws IOException {
+        Motherboard mb = new Motherboard();
+        Device a = Device.createDevice("a");
+        Device b = Device.createDevice("b");
+
+        b.addPort(13);
+        mb.add(a); mb.add(b);
+
+        Path file = Files.createTempFile("motherboard", ".json");
+        try {
+            MessageTracer.clear();
+            MessageTracer.setSampleRate(1);
+
+            mb.broadcast(a, new Message("a", 13, "hello"));
+            a.receive(new Message("b", 13, "unrouted"), b);
+
+            MessageTracer.export(file);
+            String trace = Files.readString(file);
+
+            assertTrue(trace.startsWith("{\"traceEvents\":["));
+            assertTrue(trace.contains("\"name\":\"broadcast.fanout\""));
+            assertTrue(trace.contains("\"name\":\"forward.insert\""));
+            assertTrue(trace.contains("\"name\":\"receive.hasPort\""));
+            assertFalse(trace.contains("\"name\":\"receive.insert\""));
+            assertTrue(trace.contains("\"sender\":\"a\",\"recipient\":\"b\""));
+        } finally {
+            MessageTracer.setSampleRate(0);
+            MessageTracer.clear();
+            Files.delete(file);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> MessageTracer.setSampleRate(1.5));
+    }
+
+    @Test
+    public void testParking() throws InterruptedException {
+        Device a = Device.createDevice("a");
+        Device b = Device.createDevice("b");
+
+        //without parking the message is dropped
+        assertFalse(b.pendingDeliveries().isPresent());
+
+        b.enableParking(2, Duration.ofMinutes(1), 16);
+        PendingDeliveries pending = b.pendingDeliveries().get();
+
+        Message m = new Message("b", 13, "early");
+        Message m2 = new Message("b", 13, "early too");
+        Message m3 = new Message("b", 13, "overflow");
+
+        a.forward(m, b);
+        b.receive(m2, a);
+        a.forward(m3, b);
+
+        assertFalse(b.deviceMessages().containsKey(m));
+        assertEquals(2, pending.pendingCount(13));
+        assertEquals(1, pending.droppedCount());
+
+        //adding the port drains the parked messages
+        b.addPort(13);
+
+        assertTrue(b.deviceMessages().containsKey(m));
+        assertTrue(b.deviceMessages().containsKey(m2));
+        assertFalse(b.deviceMessages().containsKey(m3));
+        assertEquals(a, b.deviceMessages().get(m));
+        assertEquals(0, pending.pendingCount(13));
+        assertEquals(2, pending.deliveredCount());
+
+        //expired messages go to the dead-letter queue
+        Device c = Device.createDevice("c");
+        c.enableParking(4, Duration.ofNanos(1), 16);
+        Message m4 = new Message("c", 12, "late");
+        a.forward(m4, c);
+
+        Thread.sleep(1);
+        c.addPort(12);
+
+        PendingDeliveries expired = c.pendingDeliveries().get();
+        assertFalse(c.deviceMessages().containsKey(m4));
+        assertTrue(expired.deadLetters().contains(m4));
+        assertEquals(1, expired.expiredCount());
+        assertEquals(0, expired.evictedCount());
+
+        assertThrows(IllegalArgumentException.class, () -> c.enableParking(0, Duration.ofSeconds(1), 16));
+        assertThrows(IllegalArgumentException.class, () -> c.enableParking(1, Duration.ofSeconds(1), 0));
+    }
+
+    @Test
+    public void testDeadLetterBound() throws InterruptedException {
+        Device a = Device.createDevice("a");
+        Device b = Device.createDevice("b");
+
+        //one message per port, but only two dead letters kept for the device
+        b.enableParking(1, Duration.ofNanos(1), 2);
+        PendingDeliveries pending = b.pendingDeliveries().get();
+
+        Message m = new Message("b", 1, "first");
+        Message m2 = new Message("b", 2, "second");
+        Message m3 = new Message("b", 3, "third");
+
+        a.forward(m, b);
+        a.forward(m2, b);
+        a.forward(m3, b);
+
+        Thread.sleep(1);
+        pending.expire();
+
+        assertEquals(3, pending.expiredCount());
+        assertEquals(1, pending.evictedCount());
+        assertEquals(List.of(m2, m3), List.copyOf(pending.deadLetters()));
+    }
+
+    @Test
+    public void testParkingEnabledTwice() {
+        Device a = Device.createDevice("a");
+        Device b = Device.createDevice("b");
+
+        b.enableParking(2, Duration.ofMinutes(1), 16);
+
+        Message m = new Message("b", 5, "parked");
+        a.forward(m, b);
+
+        //enabling again would replace the pending deliveries and lose m
+        assertThrows(IllegalStateException.class, () -> b.enableParking(4, Duration.ofMinutes(1), 16));
+
+        b.addPort(5);
+
+        assertTrue(b.deviceMessages().containsKey(m));
+        assertEquals(1, b.pendingDeliveries().get().deliveredCount());
+    }
+
+    @Test
+    public void testParkingNegativePort() {
+        Device a = Device.createDevice("a");
+        Device b = Device.createDevice("b");
+
+        b.enableParking(2, Duration.ofMinutes(1), 16);
+        PendingDeliveries pending = b.pendingDeliveries().get();
+
+        //addPort(-13) registers 13, so a message for -13 could never be drained
+        Message m = new Message("b", -13, "negative");
+        a.forward(m, b);
+
+        assertEquals(0, pending.pendingCount(-13));
+        assertEquals(0, pending.parkedCount());
+        assertEquals(1, pending.droppedCount());
+
+        b.addPort(-13);
+
+        assertFalse(b.deviceMessages().containsKey(m));
+        assertEquals(0, pending.deliveredCount());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+package Motherboard;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Messages held for a device until it registers the port they were sent to.
+ * Each port holds a bounded number of messages for a limited time, expired messages
+ * are moved to a dead-letter queue.
+ */
+public final class PendingDeliveries {
+
+    //a parked message together with its sender and expiry time.
+    private record Pending(Message message, Device sender, long deadline) {
+    }
+
+    //maximum messages parked per port.
+    private final int capacity;
+
+    //maximum expired messages kept across all ports.
+    private final int deadLetterCapacity;
+
+    //how long a message stays parked.
+    private final long ttlNanos;
+
+    //parked messages by the port they were sent to, oldest first.
+    private final Map<Integer, ArrayDeque<Pending>> pendingByPort;
+
+    //most recently expired messages, oldest first.
+    private final ArrayDeque<Message> deadLetters;
+
+    private long parked;
+    private long delivered;
+    private long expired;
+    private long dropped;
+    private long evicted;
+
+    /**
+     * Constructor for the PendingDeliveries class.
+     * @param capacity the maximum number of messages parked per port.
+     * @param ttl how long a message stays parked before it expires.
+     * @param deadLetterCapacity the maximum number of expired messages kept.
+     */
+    PendingDeliveries(int capacity, Duration ttl, int deadLetterCapacity) {
+        MotherboardException.checkParking(capacity, ttl, deadLetterCapacity);
+
+        this.capacity = capacity;
+        this.deadLetterCapacity = deadLetterCapacity;
+        this.ttlNanos = ttl.toNanos();
+        pendingByPort = new HashMap<>();
+        deadLetters = new ArrayDeque<>();
+    }
+
+    /**
+     * Holds a message for a port that isn't registered yet.
+     * @param m the message to hold.
+     * @param sender the device that sent the message.
+     */
+    void park(Message m, Device sender) {
+        assert m != null : "null message object";
+        assert sender != null : "app is null";
+
+        //addPort registers checkPortNum(port), a port it changes can never be added.
+        if (MotherboardException.checkPortNum(m.port()) != m.port()) {
+            dropped++;
+            return;
+        }
+
+        long now = System.nanoTime();
+        ArrayDeque<Pending> pending = pendingByPort.computeIfAbsent(m.port(), k -> new ArrayDeque<>());
+        expire(pending, now);
+
+        if (pending.size() >= capacity) {
+            dropped++;
+            return;
+        }
+
+        pending.addLast(new Pending(m, sender, now + ttlNanos));
+        parked++;
+    }
+
+    /**
+     * Delivers every unexpired message parked for the port in one pass.
+     * @param port the port that was registered.
+     * @param deliver receives each message with its sender.
+     */
+    void drain(int port, BiConsumer<Message, Device> deliver) {
+        ArrayDeque<Pending> pending = pendingByPort.remove(port);
+        if (pending == null)
+            return;
+
+        long now = System.nanoTime();
+        for (Pending p : pending) {
+            if (p.deadline() - now <= 0) {
+                deadLetter(p);
+            } else {
+                deliver.accept(p.message(), p.sender());
+                delivered++;
+            }
+        }
+    }
+
+    /**
+     * Moves every expired message, on any port, to the dead-letter queue.
+     */
+    public void expire() {
+        long now = System.nanoTime();
+
+        Iterator<ArrayDeque<Pending>> ports = pendingByPort.values().iterator();
+        while (ports.hasNext()) {
+            ArrayDeque<Pending> pending = ports.next();
+            expire(pending, now);
+            if (pending.isEmpty())
+                ports.remove();
+        }
+    }
+
+    //messages on a port share the ttl, so the expired ones are at the front.
+    private void expire(ArrayDeque<Pending> pending, long now) {
+        while (!pending.isEmpty() && pending.peekFirst().deadline() - now <= 0) {
+            deadLetter(pending.pollFirst());
+        }
+    }
+
+    private void deadLetter(Pending p) {
+        if (deadLetters.size() >= deadLetterCapacity) {
+            deadLetters.pollFirst();
+            evicted++;
+        }
+
+        deadLetters.addLast(p.message());
+        expired++;
+    }
+
+    /**
+     * This will return the most recently expired messages, it is immutable.
+     * @return dead-letter queue, oldest first.
+     */
+    public Collection<Message> deadLetters() {
+        return Collections.unmodifiableCollection(deadLetters);
+    }
+
+    /**
+     * @param port the port to check.
+     * @return the number of messages currently parked on the port.
+     */
+    public int pendingCount(int port) {
+        ArrayDeque<Pending> pending = pendingByPort.get(port);
+        return pending == null ? 0 : pending.size();
+    }
+
+    /**
+     * @return the number of messages that have been parked.
+     */
+    public long parkedCount() {
+        return parked;
+    }
+
+    /**
+     * @return the number of parked messages delivered once their port was added.
+     */
+    public long deliveredCount() {
+        return delivered;
+    }
+
+    /**
+     * @return the number of parked messages that expired.
+     */
+    public long expiredCount() {
+        return expired;
+    }
+
+    /**
+     * @return the number of dead letters pushed out by newer ones, expiredCount minus the ones kept.
+     */
+    public long evictedCount() {
+        return evicted;
+    }
+
+    /**
+     * @return the number of messages rejected because their port was full or can never be added.
+     */
+    public long droppedCount() {
+        return dropped;
+    }
+}
@@ -0,0 +1,281 @@
+package Motherboard;
+
+import java.lang.invoke.VarHandle;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Motherboard that partitions the connected devices by identifier hash across a number of shards.
+ * Each shard owns its devices and is driven by its own event-loop thread, so no locks are taken
+ * on the delivery path. Work is handed to the shards through single-producer/single-consumer queues,
+ * which means a ShardedMotherboard, like Motherboard, must be driven from one thread.
+ *
+ * add, remove, forward and broadcast are asynchronous; getDevice, toString and flush wait until
+ * every shard has caught up. Ports should be assigned to a device before it is added, or after a flush.
+ */
+public final class ShardedMotherboard implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(ShardedMotherboard.class.getName());
+
+    //pending tasks each shard can hold before the caller has to wait.
+    private static final int QUEUE_CAPACITY = 1024;
+
+    //empty polls before an idle shard parks until work is submitted.
+    private static final int IDLE_SPINS = 1000;
+
+    //the shards, a device lives on the shard its identifier hashes to.
+    private final Shard[] shards;
+
+    /**
+     * Constructor for the ShardedMotherboard class.
+     * @param shardCount the number of shards, and event-loop threads, to run.
+     */
+    public ShardedMotherboard(int shardCount) {
+        MotherboardException.checkShardCount(shardCount);
+
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Returns the device associated with the given identifier.
+     *
+     * @param device the identifier of the device to be returned.
+     * @return the device associated with the given identifier.
+     */
+    public Device getDevice(String device) {
+        MotherboardException.checkNullId(device);
+
+        flush();
+        return shardFor(device).deviceLookup.get(device);
+    }
+
+    /**
+     * Connects the device by adding it to the shard that owns its identifier.
+     *
+     * @param device the device to be added to the motherboard.
+     */
+    public void add(Device device) {
+        MotherboardException.checkNullDevice(device);
+        MotherboardException.checkNullId(device.toString());
+
+        String id = device.toString();
+        submit(id, lookup -> lookup.put(id, device));
+    }
+
+    /**
+     * Disconnects the device by removing it from the shard that owns it.
+     *
+     * @param id the identifier of the device to be removed.
+     */
+    public void remove(String id) {
+        MotherboardException.checkNullId(id);
+
+        submit(id, lookup -> lookup.remove(id));
+    }
+
+    /**
+     * Forwards a message to a single connected device, delivered on the recipient's shard.
+     * @param a device sending the message.
+     * @param m message to be sent.
+     * @param recipient the identifier of the receiving device.
+     */
+    public void forward(Device a, Message m, String recipient) {
+        MotherboardException.checkNullDevice(a);
+        MotherboardException.checkNullMessage(m);
+        MotherboardException.checkNullId(recipient);
+
+        submit(recipient, lookup -> {
+            Device d = lookup.get(recipient);
+            if (d != null)
+                a.forward(m, d);
+        });
+    }
+
+    /**
+     * Sends a message to all the devices as long as they're connected to the motherboard.
+     * Every shard delivers to its own devices in parallel.
+     * @param a device sending the message to others.
+     * @param m message to be sent.
+     */
+    public void broadcast(Device a, Message m) {
+        MotherboardException.checkNullDevice(a);
+        MotherboardException.checkNullMessage(m);
+
+        Consumer<Map<String, Device>> task = lookup -> {
+            for (Device recipients : lookup.values()) {
+                a.forward(m, recipients);
+            }
+        };
+
+        for (Shard shard : shards) {
+            shard.submit(task);
+        }
+    }
+
+    /**
+     * Waits until every shard has processed all the work submitted so far.
+     */
+    public void flush() {
+        for (Shard shard : shards) {
+            shard.awaitCompletion();
+        }
+    }
+
+    /**
+     * Processes the remaining work and stops the shard threads.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            for (Shard shard : shards) {
+                shard.stop();
+            }
+        }
+    }
+
+    /**
+     * @return the number of shards.
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return a string representation of the motherboard.
+     */
+    public String toString() {
+        flush();
+
+        Map<String, Device> all = new HashMap<>();
+        for (Shard shard : shards) {
+            all.putAll(shard.deviceLookup);
+        }
+        return all.toString();
+    }
+
+    /**
+     * Runs a task on the shard that owns the identifier.
+     * @param id the identifier picking the shard.
+     * @param task receives the shard's identifier to device map.
+     */
+    void submit(String id, Consumer<Map<String, Device>> task) {
+        shardFor(id).submit(task);
+    }
+
+    //picks the shard owning the identifier.
+    private Shard shardFor(String id) {
+        assert id != null : "id is null";
+
+        return shards[Math.floorMod(id.hashCode(), shards.length)];
+    }
+
+    //a partition of the devices together with the thread that owns it.
+    private static final class Shard implements Runnable {
+
+        //identifier associated with the device, only touched by the shard thread.
+        private final Map<String, Device> deviceLookup = new HashMap<>();
+
+        //work handed over by the caller thread.
+        private final SpscQueue<Consumer<Map<String, Device>>> inbound = new SpscQueue<>(QUEUE_CAPACITY);
+
+        //tasks submitted, only touched by the caller thread.
+        private long submitted;
+
+        //tasks processed, only written by the shard thread.
+        private final AtomicLong completed = new AtomicLong();
+
+        private final Thread thread;
+
+        private volatile boolean running = true;
+
+        private volatile boolean idle;
+
+        private Shard(int index) {
+            thread = new Thread(this, "motherboard-shard-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        //hands a task to the shard, waiting while its queue is full.
+        private void submit(Consumer<Map<String, Device>> task) {
+            if (!running)
+                throw new IllegalStateException("motherboard is closed");
+
+            while (!inbound.offer(task)) {
+                checkAlive();
+                Thread.onSpinWait();
+            }
+            submitted++;
+
+            //pairs with the shard publishing idle before re-checking the queue, so a wakeup can't be lost.
+            VarHandle.fullFence();
+            if (idle)
+                LockSupport.unpark(thread);
+        }
+
+        private void awaitCompletion() {
+            while (completed.get() < submitted) {
+                //the thread's last writes are visible once it's seen dead, so re-check before failing.
+                if (!thread.isAlive() && completed.get() < submitted)
+                    throw new IllegalStateException(thread.getName() + " has stopped");
+                Thread.onSpinWait();
+            }
+        }
+
+        //fails instead of waiting on a shard whose thread died.
+        private void checkAlive() {
+            if (!thread.isAlive())
+                throw new IllegalStateException(thread.getName() + " has stopped");
+        }
+
+        private void stop() {
+            running = false;
+            LockSupport.unpark(thread);
+
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            int spins = 0;
+
+            while (running) {
+                Consumer<Map<String, Device>> task = inbound.poll();
+
+                if (task != null) {
+                    try {
+                        task.accept(deviceLookup);
+                    } catch (RuntimeException e) {
+                        logger.log(Level.SEVERE, "shard task failed", e);
+                    } finally {
+                        //an Error still ends the thread, but flush can tell the task was handled.
+                        completed.lazySet(completed.get() + 1);
+                    }
+                    spins = 0;
+                } else if (++spins < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    idle = true;
+                    if (running && inbound.isEmpty())
+                        LockSupport.park(this);
+                    idle = false;
+                    spins = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package Motherboard;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded single-producer/single-consumer ring buffer used to hand work to a shard.
+ * Exactly one thread may call offer and exactly one (other) thread may call poll.
+ * @param <E> the element type.
+ */
+final class SpscQueue<E> {
+
+    //slots of the ring, the capacity is always a power of two.
+    private final AtomicReferenceArray<E> buffer;
+
+    //capacity - 1, used to wrap the indexes.
+    private final int mask;
+
+    //next slot the producer writes, only advanced by the producer.
+    private final AtomicLong tail = new AtomicLong();
+
+    //next slot the consumer reads, only advanced by the consumer.
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Constructor for the SpscQueue class.
+     * @param capacity the minimum number of elements the queue can hold.
+     */
+    SpscQueue(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+
+        buffer = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an element to the queue, only called by the producer thread.
+     * @param e the element to add.
+     * @return false if the queue is full.
+     */
+    boolean offer(E e) {
+        assert e != null : "null element";
+
+        long t = tail.get();
+        if (t - head.get() > mask)
+            return false;
+
+        buffer.lazySet((int) t & mask, e);
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Checks for pending elements, only called by the consumer thread.
+     * @return true if the queue is empty.
+     */
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Removes the next element from the queue, only called by the consumer thread.
+     * @return the next element, or null if the queue is empty.
+     */
+    E poll() {
+        long h = head.get();
+        if (h == tail.get())
+            return null;
+
+        int slot = (int) h & mask;
+        E e = buffer.get(slot);
+        buffer.lazySet(slot, null);
+        head.lazySet(h + 1);
+        return e;
+    }
+}